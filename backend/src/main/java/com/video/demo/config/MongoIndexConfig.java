@@ -0,0 +1,87 @@
+package com.video.demo.config;
+
+import com.video.demo.model.ChatMessage;
+import com.video.demo.model.Room;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Value("${chat.retention-days:30}")
+    private long chatRetentionDays;
+    
+    // Disabled for build-time training runs that must not touch the database
+    @Value("${mongo.startup.enabled:true}")
+    private boolean startupEnabled;
+    
+    // Runs before the web server starts so room creation never sees a missing unique index
+    @PostConstruct
+    public void ensureIndexes() {
+        if (!startupEnabled) {
+            return;
+        }
+        
+        // Mongo's TTL monitor drops chat messages once they exceed the retention window
+        ensureIndex(ChatMessage.class, new Index()
+            .on("timestamp", Sort.Direction.ASC)
+            .expire(Duration.ofDays(chatRetentionDays))
+            .named("chat_messages_ttl"));
+        
+        // Chat history reads and sequence recovery scan a room's messages by seq
+        ensureIndex(ChatMessage.class, new Index()
+            .on("roomCode", Sort.Direction.ASC)
+            .on("seq", Sort.Direction.ASC)
+            .named("chat_messages_room_seq"));
+        
+        // Room codes are allocated by insert-and-retry, which relies on this constraint
+        ensureRequiredIndex(Room.class, new Index()
+            .on("roomCode", Sort.Direction.ASC)
+            .unique()
+            .named("rooms_room_code_unique"));
+        
+        // Supports the reaper's scan for idle active rooms
+        ensureIndex(Room.class, new Index()
+            .on("active", Sort.Direction.ASC)
+            .on("lastActivityAt", Sort.Direction.ASC)
+            .named("rooms_active_last_activity"));
+    }
+    
+    /**
+     * For indexes that enforce correctness rather than speed. Without the
+     * unique room code index, inserts would silently accept duplicate codes,
+     * so startup fails instead.
+     */
+    private void ensureRequiredIndex(Class<?> entityClass, IndexDefinition index) {
+        try {
+            mongoTemplate.indexOps(entityClass).ensureIndex(index);
+        } catch (Exception e) {
+            // Usually existing duplicate room codes; they must be resolved before the index can be built
+            throw new IllegalStateException("Could not ensure required index " + index.getIndexOptions().get("name")
+                + " on " + entityClass.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+    
+    // Best effort: TTL and scan indexes only affect retention and query speed
+    private void ensureIndex(Class<?> entityClass, IndexDefinition index) {
+        try {
+            mongoTemplate.indexOps(entityClass).ensureIndex(index);
+        } catch (Exception e) {
+            // e.g. an existing index with different options; keep serving rather than fail startup
+            log.warn("Could not ensure index on {}: {}", entityClass.getSimpleName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.video.demo.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+@Slf4j
+@Configuration
+public class MongoWarmupConfig {
+    
+    // Static so the customizer doesn't tie this config's lifecycle to the MongoClient it customizes
+    @Bean
+    public static MongoClientSettingsBuilderCustomizer mongoPoolWarmupCustomizer(
+            @Value("${mongo.warmup.min-pool-size:4}") int minPoolSize) {
+        // The driver's pool maintenance thread opens this many connections in the background
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool.minSize(minPoolSize));
+    }
+    
+    // Runs after all singletons exist but before the web server accepts connections
+    @Bean
+    public SmartInitializingSingleton mongoWarmup(MongoTemplate mongoTemplate,
+                                                  @Value("${mongo.startup.enabled:true}") boolean enabled) {
+        return () -> {
+            if (!enabled) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                mongoTemplate.executeCommand("{ ping: 1 }");
+                log.info("MongoDB warmed up in {} ms", (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                log.warn("MongoDB warm-up ping failed: {}", e.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package com.video.demo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs how long after JVM start the app became ready and served its first
+ * request (REST or the /ws/signaling upgrade), to track cold-start cost.
+ */
+@Slf4j
+@Component
+public class StartupTimingFilter extends OncePerRequestFilter {
+    
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        log.info("Ready to serve {} ms after JVM start", uptimeMs());
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!firstRequestSeen.get() && firstRequestSeen.compareAndSet(false, true)) {
+            log.info("Time to first request: {} ms after JVM start ({} {})",
+                uptimeMs(), request.getMethod(), request.getRequestURI());
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    private static long uptimeMs() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -1,10 +1,14 @@
 package com.video.demo.controller;
 
+import com.video.demo.dto.BulkRoomCodesRequest;
+import com.video.demo.dto.BulkRoomRequest;
+import com.video.demo.dto.BulkResponse;
 import com.video.demo.dto.JoinRoomRequest;
 import com.video.demo.dto.RoomRequest;
 import com.video.demo.dto.RoomResponse;
 import com.video.demo.dto.ChatMessageRequest;
 import com.video.demo.dto.ChatMessageResponse;
+import com.video.demo.service.BulkRoomService;
 import com.video.demo.service.RoomService;
 import com.video.demo.service.ChatService;
 import jakarta.validation.Valid;
@@ -22,6 +26,7 @@ public class RoomController {
     
     private final RoomService roomService;
     private final ChatService chatService;
+    private final BulkRoomService bulkRoomService;
     
     @PostMapping("/create")
     public ResponseEntity<?> createRoom(@Valid @RequestBody RoomRequest request) {
@@ -123,4 +128,38 @@ public class RoomController {
                 .body(Map.of("error", e.getMessage()));
         }
     }
+    
+    // Bulk administration endpoints - one result per requested item, in request order
+    @PostMapping("/bulk/create")
+    public ResponseEntity<?> createRooms(@Valid @RequestBody BulkRoomRequest request) {
+        try {
+            BulkResponse response = bulkRoomService.createRooms(request.getRooms());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/bulk/deactivate")
+    public ResponseEntity<?> deactivateRooms(@Valid @RequestBody BulkRoomCodesRequest request) {
+        try {
+            BulkResponse response = bulkRoomService.deactivateRooms(request.getRoomCodes(), request.getUsername());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<?> deleteRooms(@Valid @RequestBody BulkRoomCodesRequest request) {
+        try {
+            BulkResponse response = bulkRoomService.deleteRooms(request.getRoomCodes(), request.getUsername());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
 }
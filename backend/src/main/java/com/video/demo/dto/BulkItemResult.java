@@ -0,0 +1,23 @@
+package com.video.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult {
+    private String roomCode;
+    private boolean success;
+    private String error;
+    private RoomResponse room; // Only set for created rooms
+    
+    public static BulkItemResult ok(String roomCode, RoomResponse room) {
+        return new BulkItemResult(roomCode, true, null, room);
+    }
+    
+    public static BulkItemResult failed(String roomCode, String error) {
+        return new BulkItemResult(roomCode, false, error, null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.video.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResponse {
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResult> results; // Same order as the request
+    
+    public static BulkResponse of(List<BulkItemResult> results) {
+        int succeeded = (int) results.stream().filter(BulkItemResult::isSuccess).count();
+        return new BulkResponse(succeeded, results.size() - succeeded, results);
+    }
+}
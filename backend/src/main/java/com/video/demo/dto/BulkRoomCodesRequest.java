@@ -0,0 +1,21 @@
+package com.video.demo.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRoomCodesRequest {
+    
+    @NotEmpty(message = "At least one room code is required")
+    private List<String> roomCodes;
+    
+    @NotBlank(message = "Username is required")
+    private String username; // Must be the creator of every room affected
+}
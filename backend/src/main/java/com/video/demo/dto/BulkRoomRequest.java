@@ -0,0 +1,18 @@
+package com.video.demo.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRoomRequest {
+    
+    @NotEmpty(message = "At least one room is required")
+    private List<@Valid RoomRequest> rooms;
+}
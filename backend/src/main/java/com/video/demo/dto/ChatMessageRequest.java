@@ -13,4 +13,6 @@ public class ChatMessageRequest {
     
     @NotBlank(message = "Message is required")
     private String message;
+    
+    private String clientMessageId; // Optional - lets retried sends be deduplicated
 }
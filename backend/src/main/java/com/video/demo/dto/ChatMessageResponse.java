@@ -14,4 +14,6 @@ public class ChatMessageResponse {
     private String username;
     private String message;
     private LocalDateTime timestamp;
+    private long seq;
+    private String clientMessageId;
 }
@@ -0,0 +1,15 @@
+package com.video.demo.event;
+
+import com.video.demo.dto.ChatMessageResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Published once for every chat message the backend accepts, whichever
+ * channel it arrived on, so it can be fanned out to the room's connections.
+ */
+@Data
+@AllArgsConstructor
+public class ChatMessageAcceptedEvent {
+    private ChatMessageResponse message;
+}
@@ -0,0 +1,282 @@
+package com.video.demo.handler;
+
+import lombok.Getter;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+
+/**
+ * A participant's seat in a signaling room. The seat outlives the underlying
+ * WebSocket connection: every outbound frame is numbered with a per-seat
+ * {@code frameSeq} and kept in a bounded ring of recent frames, so a client
+ * presenting the resume token and the last frameSeq it received can
+ * re-attach and receive everything after it - including frames written into
+ * a half-open socket before the server noticed the drop.
+ *
+ * The seat monitor only guards bookkeeping; socket writes happen outside it.
+ * Frames are written in seq order by whichever caller holds the write slot,
+ * while other callers append to the ring and return, so threads sending to a
+ * slow client are not held up beyond the connection's own send limits.
+ */
+public class ParticipantSession {
+    
+    @Getter
+    private final String roomCode;
+    @Getter
+    private final String username;
+    @Getter
+    private final String resumeToken;
+    
+    private final Frame[] recentFrames;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private WebSocketSession session;
+    private long lastSeq;
+    private long lastWrittenSeq;
+    private boolean writeFailed;
+    private boolean released;
+    private long detachGeneration;
+    private ScheduledFuture<?> expiry;
+    
+    public ParticipantSession(String roomCode, String username, String resumeToken,
+                              WebSocketSession session, int maxRecentFrames) {
+        this.roomCode = roomCode;
+        this.username = username;
+        this.resumeToken = resumeToken;
+        this.session = session;
+        this.recentFrames = new Frame[maxRecentFrames];
+    }
+    
+    public synchronized boolean isAttached() {
+        return session != null;
+    }
+    
+    public synchronized boolean isAttachedTo(String sessionId) {
+        return session != null && session.getId().equals(sessionId);
+    }
+    
+    /**
+     * True when the attached connection is already closed, or a write to it
+     * failed, but the close was never reported to the handler.
+     */
+    public synchronized boolean hasClosedConnection() {
+        return session != null && (writeFailed || !session.isOpen());
+    }
+    
+    /**
+     * Sends a WebSocket ping on the attached connection, if any.
+     */
+    public void ping() throws IOException {
+        WebSocketSession current = currentSession();
+        if (current != null && current.isOpen()) {
+            current.sendMessage(new PingMessage());
+        }
+    }
+    
+    /**
+     * Closes the attached connection if it is still the given one.
+     */
+    public void closeConnection(String sessionId, CloseStatus status) {
+        WebSocketSession current = currentSession();
+        if (current != null && current.getId().equals(sessionId)) {
+            closeQuietly(current, status);
+        }
+    }
+    
+    /**
+     * Numbers a frame, keeps it for replay and writes it to the attached
+     * connection. A failed write is treated like a detached seat: the frame
+     * stays in the ring for the next resume. Returns false once frames the
+     * client never got have fallen out of the ring, in which case replay is
+     * no longer possible and the seat should be released.
+     */
+    public boolean send(String frame) {
+        synchronized (this) {
+            if (released) {
+                return false;
+            }
+            long seq = ++lastSeq;
+            String numbered = "{\"frameSeq\":" + seq + (frame.length() > 2 ? "," : "") + frame.substring(1);
+            recentFrames[slot(seq)] = new Frame(seq, numbered);
+        }
+        flush();
+        synchronized (this) {
+            return !hasUndeliverableGap();
+        }
+    }
+    
+    /**
+     * Detaches the seat from the given connection and arms the expiry task,
+     * which is handed the detach generation to pass back to {@link #expire}.
+     * Does nothing if the seat was released or has moved to another
+     * connection in the meantime.
+     */
+    public synchronized boolean detach(String sessionId, LongFunction<ScheduledFuture<?>> scheduleExpiry) {
+        if (released || session == null || !session.getId().equals(sessionId)) {
+            return false;
+        }
+        cancelExpiry();
+        this.session = null;
+        this.expiry = scheduleExpiry.apply(++detachGeneration);
+        return true;
+    }
+    
+    /**
+     * Binds a new connection to the seat, cancels any pending expiry and
+     * replays every retained frame after {@code lastReceivedSeq}. A previous
+     * connection the server still believes is open (half-open TCP) is closed.
+     * Returns the number of frames replayed, or -1 if the seat was already
+     * released or frames after {@code lastReceivedSeq} are no longer retained.
+     */
+    public int resume(WebSocketSession newSession, Long lastReceivedSeq) {
+        WebSocketSession previous;
+        int replayed;
+        synchronized (this) {
+            // Older clients don't report a seq; replay what was never written to a socket
+            long after = lastReceivedSeq != null ? lastReceivedSeq : lastWrittenSeq;
+            if (released || after > lastSeq || after + 1 < oldestRetainedSeq()) {
+                return -1;
+            }
+            
+            cancelExpiry();
+            detachGeneration++;
+            previous = this.session;
+            this.session = newSession;
+            this.writeFailed = false;
+            this.lastWrittenSeq = after;
+            replayed = (int) (lastSeq - after);
+        }
+        
+        if (previous != null && !previous.getId().equals(newSession.getId())) {
+            closeQuietly(previous, CloseStatus.NORMAL);
+        }
+        flush();
+        return replayed;
+    }
+    
+    /**
+     * Marks the seat released if it is still detached under the given
+     * generation, i.e. no resume or later detach happened in between.
+     * Returns true if this call released it.
+     */
+    public synchronized boolean expire(long generation) {
+        if (released || session != null || generation != detachGeneration) {
+            return false;
+        }
+        released = true;
+        expiry = null;
+        return true;
+    }
+    
+    /**
+     * Marks the seat released so later resumes fail. Returns false if it
+     * already was.
+     */
+    public synchronized boolean release() {
+        if (released) {
+            return false;
+        }
+        released = true;
+        cancelExpiry();
+        return true;
+    }
+    
+    public synchronized void cancelExpiry() {
+        if (expiry != null) {
+            expiry.cancel(false);
+            expiry = null;
+        }
+    }
+    
+    /**
+     * Writes unwritten frames in seq order. Only one caller writes at a time;
+     * the others return at once and the writer picks up their frames.
+     */
+    private void flush() {
+        while (writing.compareAndSet(false, true)) {
+            try {
+                writePending();
+            } finally {
+                writing.set(false);
+            }
+            // A frame may have been appended after the writer's last check but before it gave up the slot
+            synchronized (this) {
+                if (!hasWritableFrame()) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void writePending() {
+        while (true) {
+            WebSocketSession target;
+            Frame next;
+            synchronized (this) {
+                if (!hasWritableFrame()) {
+                    return;
+                }
+                target = session;
+                next = recentFrames[slot(lastWrittenSeq + 1)];
+            }
+            
+            try {
+                target.sendMessage(new TextMessage(next.payload()));
+            } catch (Exception e) {
+                // Broken socket, or the send limits were exceeded; hold frames as if detached
+                synchronized (this) {
+                    if (session == target) {
+                        writeFailed = true;
+                    }
+                }
+                closeQuietly(target, CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            
+            synchronized (this) {
+                // After a resume onto another connection, that connection starts from its own position
+                if (session == target) {
+                    lastWrittenSeq = next.seq();
+                }
+            }
+        }
+    }
+    
+    private synchronized WebSocketSession currentSession() {
+        return session;
+    }
+    
+    private boolean hasWritableFrame() {
+        return session != null && !writeFailed && session.isOpen()
+            && lastWrittenSeq < lastSeq && !hasUndeliverableGap();
+    }
+    
+    // The next frame the client needs has already been overwritten in the ring
+    private boolean hasUndeliverableGap() {
+        return lastWrittenSeq + 1 < oldestRetainedSeq();
+    }
+    
+    private long oldestRetainedSeq() {
+        return Math.max(1, lastSeq - recentFrames.length + 1);
+    }
+    
+    private int slot(long seq) {
+        return (int) (seq % recentFrames.length);
+    }
+    
+    private static void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ignored) {
+            // Connection is already unusable
+        }
+    }
+    
+    private record Frame(long seq, String payload) {
+    }
+}
@@ -2,23 +2,102 @@ package com.video.demo.handler;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.video.demo.dto.ChatMessageResponse;
+import com.video.demo.event.ChatMessageAcceptedEvent;
+import com.video.demo.service.ChatService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SignalingHandler extends TextWebSocketHandler {
     
-    private final Map<String, Map<String, WebSocketSession>> rooms = new ConcurrentHashMap<>();
+    // Tomcat's per-session bound on a blocking write (defaults to 20 s)
+    private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    
+    private final ChatService chatService;
+    
+    private final Map<String, Map<String, ParticipantSession>> rooms = new ConcurrentHashMap<>();
+    private final Map<String, ParticipantSession> seatsBySessionId = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "signaling-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Pings and heartbeat-timeout closes write to sockets, so they run here rather than on the scheduler
+    private final ExecutorService heartbeatExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "signaling-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // How long a dropped participant keeps their seat before others see user-left
+    @Value("${signaling.resume.grace-period-ms:15000}")
+    private long resumeGracePeriodMs;
+    
+    // Recent frames kept per seat for replay; a seat with more undelivered frames than this is released
+    @Value("${signaling.resume.max-buffered-frames:256}")
+    private int maxBufferedFrames;
+    
+    // A write to one connection may block at most this long; slower clients are disconnected
+    @Value("${signaling.send.time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+    
+    // Bytes queued per connection behind an in-progress write before it is disconnected
+    @Value("${signaling.send.buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+    
+    @Value("${signaling.heartbeat.interval-ms:10000}")
+    private long heartbeatIntervalMs;
+    
+    // Connections with no pong or inbound frame for this long are treated as dead
+    @Value("${signaling.heartbeat.timeout-ms:30000}")
+    private long heartbeatTimeoutMs;
+    
+    @Value("${signaling.heartbeat.tick-ms:1000}")
+    private long heartbeatTickMs;
+    
+    private TimingWheel<String> heartbeatWheel;
+    
+    @PostConstruct
+    public void startHeartbeats() {
+        int slots = (int) (heartbeatTimeoutMs / heartbeatTickMs) + 2;
+        heartbeatWheel = new TimingWheel<>(heartbeatTickMs, slots,
+            sessionId -> heartbeatExecutor.execute(() -> onHeartbeatTimeout(sessionId)));
+        scheduler.scheduleAtFixedRate(heartbeatWheel::advance, heartbeatTickMs, heartbeatTickMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(() -> heartbeatExecutor.execute(this::sendHeartbeats),
+            heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
     
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
@@ -29,6 +108,7 @@ public class SignalingHandler extends TextWebSocketHandler {
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
         log.info("Received message: {}", payload);
+        touch(session);
         
         try {
             Map<String, Object> data = objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {});
@@ -40,16 +120,20 @@ public class SignalingHandler extends TextWebSocketHandler {
                 case "join":
                     handleJoin(session, roomCode, username);
                     break;
+                case "resume":
+                    handleResume(session, roomCode, username, (String) data.get("resumeToken"),
+                        data.get("lastFrameSeq") instanceof Number lastFrameSeq ? lastFrameSeq.longValue() : null);
+                    break;
                 case "offer":
                 case "answer":
                 case "ice-candidate":
                     handleSignaling(session, data, roomCode);
                     break;
                 case "leave":
-                    handleLeave(session, roomCode, username);
+                    handleLeave(session);
                     break;
                 case "chat":
-                    handleChat(session, data, roomCode, username);
+                    handleChat(session, data);
                     break;
                 default:
                     log.warn("Unknown message type: {}", type);
@@ -60,8 +144,16 @@ public class SignalingHandler extends TextWebSocketHandler {
     }
     
     private void handleJoin(WebSocketSession session, String roomCode, String username) throws IOException {
-        rooms.computeIfAbsent(roomCode, k -> new ConcurrentHashMap<>())
-              .put(username, session);
+        ParticipantSession seat = new ParticipantSession(roomCode, username, generateResumeToken(),
+            withSendLimits(session), maxBufferedFrames);
+        ParticipantSession previous = rooms.computeIfAbsent(roomCode, k -> new ConcurrentHashMap<>())
+              .put(username, seat);
+        if (previous != null) {
+            // Replaced by this join; its resume token is no longer valid
+            previous.release();
+        }
+        seatsBySessionId.put(session.getId(), seat);
+        heartbeatWheel.schedule(session.getId(), heartbeatTimeoutMs);
         
         // Notify other participants
         Map<String, Object> joinMessage = Map.of(
@@ -77,83 +169,236 @@ public class SignalingHandler extends TextWebSocketHandler {
             "users", rooms.get(roomCode).keySet()
         );
         
-        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(participantsMessage)));
+        seat.send(objectMapper.writeValueAsString(participantsMessage));
+        
+        // Hand out the token the client presents to resume after a dropped connection
+        Map<String, Object> sessionMessage = Map.of(
+            "type", "session",
+            "resumeToken", seat.getResumeToken(),
+            "gracePeriodMs", resumeGracePeriodMs
+        );
+        
+        seat.send(objectMapper.writeValueAsString(sessionMessage));
         
         log.info("User {} joined room {}", username, roomCode);
     }
     
+    private void handleResume(WebSocketSession session, String roomCode, String username, String resumeToken,
+                              Long lastFrameSeq) throws IOException {
+        Map<String, ParticipantSession> participants = rooms.get(roomCode);
+        ParticipantSession seat = participants != null ? participants.get(username) : null;
+        
+        // Fails if the seat was released (even concurrently by expiry) or the missed frames are no longer retained
+        int replayed = seat != null && resumeToken != null && resumeToken.equals(seat.getResumeToken())
+            ? seat.resume(withSendLimits(session), lastFrameSeq)
+            : -1;
+        if (replayed < 0) {
+            // Client falls back to a full join
+            Map<String, Object> failedMessage = Map.of(
+                "type", "resume-failed",
+                "roomCode", roomCode
+            );
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(failedMessage)));
+            log.info("Resume rejected for user {} in room {}", username, roomCode);
+            return;
+        }
+        
+        seatsBySessionId.put(session.getId(), seat);
+        heartbeatWheel.schedule(session.getId(), heartbeatTimeoutMs);
+        
+        Map<String, Object> resumedMessage = Map.of(
+            "type", "resumed",
+            "users", participants.keySet(),
+            "replayed", replayed
+        );
+        seat.send(objectMapper.writeValueAsString(resumedMessage));
+        
+        log.info("User {} resumed in room {} ({} frames replayed)", username, roomCode, replayed);
+    }
+    
     private void handleSignaling(WebSocketSession session, Map<String, Object> data, String roomCode) throws IOException {
         String targetUser = (String) data.get("target");
         
         if (rooms.containsKey(roomCode) && rooms.get(roomCode).containsKey(targetUser)) {
-            WebSocketSession targetSession = rooms.get(roomCode).get(targetUser);
-            targetSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(data)));
+            ParticipantSession target = rooms.get(roomCode).get(targetUser);
+            if (!target.send(objectMapper.writeValueAsString(data))) {
+                releaseSeat(target);
+            }
         }
     }
     
-    private void handleLeave(WebSocketSession session, String roomCode, String username) throws IOException {
-        if (rooms.containsKey(roomCode)) {
-            rooms.get(roomCode).remove(username);
-            
-            // Notify other participants
-            Map<String, Object> leaveMessage = Map.of(
-                "type", "user-left",
-                "username", username
-            );
-            
-            broadcastToRoom(roomCode, leaveMessage, null);
-            
-            // Remove room if empty
-            if (rooms.get(roomCode).isEmpty()) {
-                rooms.remove(roomCode);
-            }
-            
-            log.info("User {} left room {}", username, roomCode);
+    private void handleLeave(WebSocketSession session) {
+        // Only the caller's own seat can be released; the payload username is not trusted
+        ParticipantSession seat = seatsBySessionId.remove(session.getId());
+        if (seat == null) {
+            return;
         }
+        heartbeatWheel.cancel(session.getId());
+        releaseSeat(seat);
+        log.info("User {} left room {}", seat.getUsername(), seat.getRoomCode());
     }
     
-    private void handleChat(WebSocketSession session, Map<String, Object> data, String roomCode, String username) throws IOException {
+    private void handleChat(WebSocketSession session, Map<String, Object> data) {
+        // Attribute the message to the sender's seat rather than trusting the payload
+        ParticipantSession seat = seatsBySessionId.get(session.getId());
+        if (seat == null) {
+            log.warn("Chat from session {} without a seat ignored", session.getId());
+            return;
+        }
+        
         String message = (String) data.get("message");
+        if (message == null || message.isBlank()) {
+            return;
+        }
         
-        // Create chat message
-        Map<String, Object> chatMessage = Map.of(
-            "type", "chat",
-            "username", username,
-            "message", message,
-            "timestamp", System.currentTimeMillis()
-        );
+        // Persisted and fanned out through the shared chat pipeline
+        ChatMessageResponse accepted = chatService.accept(
+            seat.getRoomCode(), seat.getUsername(), message, (String) data.get("clientMessageId"));
         
-        // Broadcast to all participants in the room (including sender for confirmation)
-        broadcastToRoom(roomCode, chatMessage, null);
+        log.info("Chat message #{} from {} in room {}", accepted.getSeq(), seat.getUsername(), seat.getRoomCode());
+    }
+    
+    @EventListener
+    public void onChatMessageAccepted(ChatMessageAcceptedEvent event) {
+        ChatMessageResponse chat = event.getMessage();
         
-        log.info("Chat message from {} in room {}: {}", username, roomCode, message);
+        // clientMessageId may be null, so Map.of can't be used here
+        Map<String, Object> chatMessage = new LinkedHashMap<>();
+        chatMessage.put("type", "chat");
+        chatMessage.put("id", chat.getId());
+        chatMessage.put("seq", chat.getSeq());
+        chatMessage.put("clientMessageId", chat.getClientMessageId());
+        chatMessage.put("username", chat.getUsername());
+        chatMessage.put("message", chat.getMessage());
+        chatMessage.put("timestamp", chat.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        
+        // Broadcast to all participants in the room (including sender for confirmation)
+        try {
+            broadcastToRoom(chat.getRoomCode(), chatMessage, null);
+        } catch (IOException e) {
+            log.error("Error broadcasting chat message", e);
+        }
+    }
+    
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        touch(session);
     }
     
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        log.info("WebSocket connection closed: {}", session.getId());
-        
-        // Remove session from all rooms
-        rooms.forEach((roomCode, participants) -> {
-            participants.entrySet().removeIf(entry -> {
-                if (entry.getValue().getId().equals(session.getId())) {
-                    try {
-                        Map<String, Object> leaveMessage = Map.of(
-                            "type", "user-left",
-                            "username", entry.getKey()
-                        );
-                        broadcastToRoom(roomCode, leaveMessage, null);
-                    } catch (IOException e) {
-                        log.error("Error broadcasting leave message", e);
-                    }
-                    return true;
-                }
-                return false;
-            });
+        log.info("WebSocket connection closed: {} ({})", session.getId(), status.getCode());
+        handleConnectionLost(session.getId(), status);
+    }
+    
+    private void handleConnectionLost(String sessionId, CloseStatus status) {
+        heartbeatWheel.cancel(sessionId);
+        ParticipantSession seat = seatsBySessionId.remove(sessionId);
+        if (seat == null || !seat.isAttachedTo(sessionId)) {
+            // Never joined, already left, or the seat was resumed on another connection
+            return;
+        }
+        
+        // 1000 from an explicit hang-up, 1001 when the tab is closed or navigates away
+        if (CloseStatus.NORMAL.equalsCode(status) || CloseStatus.GOING_AWAY.equalsCode(status)) {
+            releaseSeat(seat);
+            return;
+        }
+        
+        // No close frame (1006) or a heartbeat timeout: hold the seat through a brief network flap
+        boolean detached = seat.detach(sessionId, generation ->
+            scheduler.schedule(() -> expireSeat(seat, generation), resumeGracePeriodMs, TimeUnit.MILLISECONDS));
+        if (!detached) {
+            return;
+        }
+        log.info("User {} detached from room {}, holding seat for {} ms",
+            seat.getUsername(), seat.getRoomCode(), resumeGracePeriodMs);
+    }
+    
+    private void touch(WebSocketSession session) {
+        if (seatsBySessionId.containsKey(session.getId())) {
+            heartbeatWheel.schedule(session.getId(), heartbeatTimeoutMs);
+        }
+    }
+    
+    private void sendHeartbeats() {
+        seatsBySessionId.values().forEach(seat -> {
+            try {
+                seat.ping();
+            } catch (Exception e) {
+                log.debug("Heartbeat to user {} failed: {}", seat.getUsername(), e.getMessage());
+            }
         });
+    }
+    
+    private void onHeartbeatTimeout(String sessionId) {
+        ParticipantSession seat = seatsBySessionId.get(sessionId);
+        if (seat == null) {
+            return;
+        }
+        log.info("Heartbeat timeout for user {} in room {}", seat.getUsername(), seat.getRoomCode());
+        // Half-open connections may never report the close, so detach the seat ourselves
+        seat.closeConnection(sessionId, CloseStatus.SESSION_NOT_RELIABLE);
+        handleConnectionLost(sessionId, CloseStatus.SESSION_NOT_RELIABLE);
+    }
+    
+    /**
+     * Detaches seats whose connection has closed without the close being
+     * reported. Returns the number of sessions evicted.
+     */
+    public int evictClosedSessions() {
+        List<String> closed = new ArrayList<>();
+        seatsBySessionId.forEach((sessionId, seat) -> {
+            if (seat.hasClosedConnection()) {
+                closed.add(sessionId);
+            }
+        });
+        closed.forEach(sessionId -> handleConnectionLost(sessionId, CloseStatus.SESSION_NOT_RELIABLE));
+        return closed.size();
+    }
+    
+    /**
+     * Room codes that currently hold at least one seat, attached or awaiting resume.
+     */
+    public Set<String> getLiveRoomCodes() {
+        return Set.copyOf(rooms.keySet());
+    }
+    
+    private void expireSeat(ParticipantSession seat, long generation) {
+        // Releases only if no resume re-attached the seat since this expiry was armed
+        if (seat.expire(generation)) {
+            log.info("Resume window elapsed for user {} in room {}", seat.getUsername(), seat.getRoomCode());
+            removeSeat(seat);
+        }
+    }
+    
+    private void releaseSeat(ParticipantSession seat) {
+        if (seat.release()) {
+            removeSeat(seat);
+        }
+    }
+    
+    private void removeSeat(ParticipantSession seat) {
+        String roomCode = seat.getRoomCode();
+        Map<String, ParticipantSession> participants = rooms.get(roomCode);
+        if (participants == null || !participants.remove(seat.getUsername(), seat)) {
+            return;
+        }
+        
+        // Notify other participants
+        Map<String, Object> leaveMessage = Map.of(
+            "type", "user-left",
+            "username", seat.getUsername()
+        );
+        
+        try {
+            broadcastToRoom(roomCode, leaveMessage, null);
+        } catch (IOException e) {
+            log.error("Error broadcasting leave message", e);
+        }
         
-        // Clean up empty rooms
-        rooms.entrySet().removeIf(entry -> entry.getValue().isEmpty());
+        // Remove room if empty
+        rooms.computeIfPresent(roomCode, (code, remaining) -> remaining.isEmpty() ? null : remaining);
     }
     
     private void broadcastToRoom(String roomCode, Map<String, Object> message, String excludeUser) throws IOException {
@@ -162,15 +407,49 @@ public class SignalingHandler extends TextWebSocketHandler {
         }
         
         String messageJson = objectMapper.writeValueAsString(message);
+        List<ParticipantSession> overflowed = new ArrayList<>();
         
-        for (Map.Entry<String, WebSocketSession> entry : rooms.get(roomCode).entrySet()) {
+        for (Map.Entry<String, ParticipantSession> entry : rooms.get(roomCode).entrySet()) {
             if (excludeUser == null || !entry.getKey().equals(excludeUser)) {
                 try {
-                    entry.getValue().sendMessage(new TextMessage(messageJson));
+                    if (!entry.getValue().send(messageJson)) {
+                        overflowed.add(entry.getValue());
+                    }
                 } catch (Exception e) {
                     log.error("Error sending message to user {}: {}", entry.getKey(), e.getMessage());
                 }
             }
         }
+        
+        // Detached participants that missed too much can't be replayed; release their seats
+        overflowed.forEach(this::releaseSeat);
+    }
+    
+    /**
+     * Wraps a connection so concurrent writers never block each other and a
+     * client that stops reading is disconnected once it exceeds the send time
+     * or buffer limit, instead of stalling the thread writing to it.
+     */
+    private WebSocketSession withSendLimits(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeSession) {
+            jakarta.websocket.Session endpoint = nativeSession.getNativeSession(jakarta.websocket.Session.class);
+            if (endpoint != null) {
+                // The decorator only enforces its time limit on the next writer; this bounds the write itself
+                endpoint.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, (long) sendTimeLimitMs);
+            }
+        }
+        return new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit);
+    }
+    
+    private String generateResumeToken() {
+        byte[] bytes = new byte[24];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        heartbeatExecutor.shutdownNow();
     }
 }
@@ -0,0 +1,83 @@
+package com.video.demo.handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for connection timeouts. Rescheduling a key is O(1),
+ * so every pong or inbound frame can push a session's deadline forward
+ * without creating and cancelling a scheduled task per heartbeat.
+ *
+ * Delays are rounded up to whole ticks and must be shorter than one turn of
+ * the wheel. {@link #advance()} is expected to be driven once per tick.
+ */
+public class TimingWheel<K> {
+    
+    private final long tickMs;
+    private final List<Set<K>> slots;
+    private final Map<K, Integer> slotByKey = new HashMap<>();
+    private final Consumer<K> onExpire;
+    private int cursor;
+    
+    public TimingWheel(long tickMs, int slotCount, Consumer<K> onExpire) {
+        this.tickMs = tickMs;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashSet<>());
+        }
+        this.onExpire = onExpire;
+    }
+    
+    public long getTickMs() {
+        return tickMs;
+    }
+    
+    /**
+     * Schedules (or reschedules) expiry of the key after the given delay.
+     */
+    public synchronized void schedule(K key, long delayMs) {
+        long ticks = Math.max(1, (delayMs + tickMs - 1) / tickMs);
+        if (ticks >= slots.size()) {
+            throw new IllegalArgumentException("Delay exceeds timing wheel span: " + delayMs + " ms");
+        }
+        removeFromSlot(key);
+        int slot = (int) ((cursor + ticks) % slots.size());
+        slots.get(slot).add(key);
+        slotByKey.put(key, slot);
+    }
+    
+    public synchronized void cancel(K key) {
+        removeFromSlot(key);
+    }
+    
+    /**
+     * Moves the wheel forward one tick and fires the keys whose deadline was reached.
+     * Callbacks run outside the wheel's lock so they may reschedule or cancel.
+     */
+    public void advance() {
+        List<K> expired;
+        synchronized (this) {
+            cursor = (cursor + 1) % slots.size();
+            Set<K> bucket = slots.get(cursor);
+            if (bucket.isEmpty()) {
+                return;
+            }
+            expired = new ArrayList<>(bucket);
+            bucket.clear();
+            expired.forEach(slotByKey::remove);
+        }
+        expired.forEach(onExpire);
+    }
+    
+    private void removeFromSlot(K key) {
+        Integer slot = slotByKey.remove(key);
+        if (slot != null) {
+            slots.get(slot).remove(key);
+        }
+    }
+}
@@ -18,6 +18,8 @@ public class ChatMessage {
     private String username;
     private String message;
     private LocalDateTime timestamp;
+    private long seq; // Per-room order assigned when the message is accepted
+    private String clientMessageId; // Sender-chosen id used to drop retransmits
     
     public ChatMessage(String roomCode, String username, String message) {
         this.roomCode = roomCode;
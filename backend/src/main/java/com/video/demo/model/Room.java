@@ -24,6 +24,7 @@ public class Room {
     private String roomName;
     private String creator; // Track who created the room
     private LocalDateTime createdAt;
+    private LocalDateTime lastActivityAt; // Set on join and while signaling seats are live; null until first used
     private Set<String> participants = new HashSet<>();
     private boolean active;
     
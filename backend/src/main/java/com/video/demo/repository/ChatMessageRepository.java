@@ -3,10 +3,14 @@ package com.video.demo.repository;
 import com.video.demo.model.ChatMessage;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChatMessageRepository extends MongoRepository<ChatMessage, String> {
-    List<ChatMessage> findByRoomCodeOrderByTimestampAsc(String roomCode);
+    List<ChatMessage> findByRoomCodeOrderBySeqAscTimestampAsc(String roomCode);
+    Optional<ChatMessage> findTopByRoomCodeOrderBySeqDesc(String roomCode);
     void deleteByRoomCode(String roomCode);
+    long deleteByRoomCodeIn(Collection<String> roomCodes);
 }
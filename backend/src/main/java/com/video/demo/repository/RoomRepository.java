@@ -2,12 +2,22 @@ package com.video.demo.repository;
 
 import com.video.demo.model.Room;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RoomRepository extends MongoRepository<Room, String> {
     Optional<Room> findByRoomCode(String roomCode);
     boolean existsByRoomCode(String roomCode);
+    List<Room> findByRoomCodeIn(Collection<String> roomCodes);
+    long deleteByRoomCodeIn(Collection<String> roomCodes);
+    
+    @Query("{ 'roomCode': { '$in': ?0 } }")
+    @Update("{ '$set': { 'active': false } }")
+    long deactivateByRoomCodeIn(Collection<String> roomCodes);
 }
@@ -0,0 +1,244 @@
+package com.video.demo.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.video.demo.dto.BulkItemResult;
+import com.video.demo.dto.BulkResponse;
+import com.video.demo.dto.RoomRequest;
+import com.video.demo.model.Room;
+import com.video.demo.repository.RoomRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batch room provisioning and teardown for schedulers that manage hundreds
+ * of rooms at once. Each operation issues a fixed number of Mongo calls
+ * regardless of batch size and reports a result per requested item.
+ */
+@Service
+@RequiredArgsConstructor
+public class BulkRoomService {
+    
+    private static final int DUPLICATE_KEY = 11000;
+    
+    private final MongoTemplate mongoTemplate;
+    private final RoomRepository roomRepository;
+    private final RoomCodeAllocator roomCodeAllocator;
+    private final RoomPasswordService roomPasswordService;
+    private final RoomService roomService;
+    private final ChatService chatService;
+    
+    @Value("${rooms.bulk.max-items:1000}")
+    private int maxItems;
+    
+    // Every created room costs one PBKDF2 hash, so creates get a smaller cap than deactivate/delete
+    @Value("${rooms.bulk.max-create-items:200}")
+    private int maxCreateItems;
+    
+    @Value("${rooms.bulk.hash-threads:2}")
+    private int hashThreads;
+    
+    private ExecutorService hashExecutor;
+    
+    @PostConstruct
+    public void start() {
+        // Bounded and shared by all bulk creates, leaving the other cores to request threads
+        hashExecutor = Executors.newFixedThreadPool(hashThreads, r -> {
+            Thread thread = new Thread(r, "bulk-password-hash");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        hashExecutor.shutdownNow();
+    }
+    
+    public BulkResponse createRooms(List<RoomRequest> requests) {
+        checkBatchSize(requests.size(), maxCreateItems);
+        
+        List<Room> rooms = newRooms(requests);
+        
+        BulkItemResult[] results = new BulkItemResult[rooms.size()];
+        boolean[] generateCode = new boolean[rooms.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            generateCode[i] = rooms.get(i).getRoomCode() == null || rooms.get(i).getRoomCode().isEmpty();
+            pending.add(i);
+        }
+        
+        // Unordered insert; generated codes that hit the unique index are redrawn and retried
+        for (int attempt = 1; attempt <= RoomCodeAllocator.MAX_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            List<Room> batch = new ArrayList<>(pending.size());
+            for (int i : pending) {
+                if (generateCode[i]) {
+                    rooms.get(i).setRoomCode(roomCodeAllocator.nextCode());
+                }
+                batch.add(rooms.get(i));
+            }
+            
+            Map<Integer, BulkWriteError> errors = insertUnordered(batch);
+            List<Integer> retry = new ArrayList<>();
+            for (int j = 0; j < pending.size(); j++) {
+                int i = pending.get(j);
+                Room room = rooms.get(i);
+                BulkWriteError error = errors.get(j);
+                if (error == null) {
+                    results[i] = BulkItemResult.ok(room.getRoomCode(), roomService.mapToResponse(room));
+                } else if (error.getCode() != DUPLICATE_KEY) {
+                    results[i] = BulkItemResult.failed(room.getRoomCode(), error.getMessage());
+                } else if (generateCode[i]) {
+                    retry.add(i);
+                } else {
+                    results[i] = BulkItemResult.failed(room.getRoomCode(), "Room code already exists");
+                }
+            }
+            pending = retry;
+        }
+        for (int i : pending) {
+            results[i] = BulkItemResult.failed(null, "Could not allocate a unique room code");
+        }
+        
+        System.out.println("🏠 Bulk created " + (rooms.size() - countFailed(results)) + " of " + rooms.size() + " rooms");
+        return BulkResponse.of(Arrays.asList(results));
+    }
+    
+    public BulkResponse deactivateRooms(List<String> roomCodes, String username) {
+        checkBatchSize(roomCodes.size(), maxItems);
+        
+        Map<String, String> failures = new HashMap<>();
+        Set<String> owned = resolveOwnedRooms(roomCodes, username, "deactivate", failures);
+        if (!owned.isEmpty()) {
+            roomRepository.deactivateByRoomCodeIn(owned);
+        }
+        
+        System.out.println("🔒 Bulk deactivated " + owned.size() + " rooms by " + username);
+        return toResponse(roomCodes, failures);
+    }
+    
+    public BulkResponse deleteRooms(List<String> roomCodes, String username) {
+        checkBatchSize(roomCodes.size(), maxItems);
+        
+        Map<String, String> failures = new HashMap<>();
+        Set<String> owned = resolveOwnedRooms(roomCodes, username, "delete", failures);
+        if (!owned.isEmpty()) {
+            // Delete chat history first, mirroring end-meeting
+            chatService.deleteChatHistories(owned);
+            roomRepository.deleteByRoomCodeIn(owned);
+        }
+        
+        System.out.println("🗑️ Bulk deleted " + owned.size() + " rooms and their chat by " + username);
+        return toResponse(roomCodes, failures);
+    }
+    
+    // Password hashing dominates the cost of a batch; it runs on the bounded hash pool, not the common pool
+    private List<Room> newRooms(List<RoomRequest> requests) {
+        List<Future<Room>> futures = requests.stream()
+            .map(request -> hashExecutor.submit(() -> newRoom(request)))
+            .toList();
+        
+        List<Room> rooms = new ArrayList<>(futures.size());
+        try {
+            for (Future<Room> future : futures) {
+                rooms.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing room passwords");
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("Failed to prepare rooms: " + e.getCause().getMessage(), e.getCause());
+        }
+        return rooms;
+    }
+    
+    private Room newRoom(RoomRequest request) {
+        Room room = new Room(
+            request.getRoomCode(),
+            roomPasswordService.hash(request.getPassword()),
+            request.getRoomName() != null ? request.getRoomName() : "Meeting Room",
+            request.getCreator()
+        );
+        // Assign the id up front so a retried insert and the response agree on it
+        room.setId(new ObjectId().toHexString());
+        room.getParticipants().add(request.getCreator());
+        return room;
+    }
+    
+    private Map<Integer, BulkWriteError> insertUnordered(List<Room> batch) {
+        try {
+            mongoTemplate.bulkOps(BulkMode.UNORDERED, Room.class)
+                .insert(batch)
+                .execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors().stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity()));
+        }
+    }
+    
+    /**
+     * Looks up all requested rooms in one query and returns the codes the user
+     * may modify. Missing rooms and rooms created by someone else are recorded
+     * in {@code failures}.
+     */
+    private Set<String> resolveOwnedRooms(List<String> roomCodes, String username, String action,
+                                          Map<String, String> failures) {
+        Map<String, Room> found = roomRepository.findByRoomCodeIn(new LinkedHashSet<>(roomCodes)).stream()
+            .collect(Collectors.toMap(Room::getRoomCode, Function.identity(), (first, second) -> first));
+        
+        Set<String> owned = new LinkedHashSet<>();
+        for (String roomCode : roomCodes) {
+            Room room = found.get(roomCode);
+            if (room == null) {
+                failures.put(roomCode, "Room not found");
+            } else if (!room.getCreator().equals(username)) {
+                failures.put(roomCode, "Only the room creator can " + action + " this room");
+            } else {
+                owned.add(roomCode);
+            }
+        }
+        return owned;
+    }
+    
+    private BulkResponse toResponse(List<String> roomCodes, Map<String, String> failures) {
+        List<BulkItemResult> results = roomCodes.stream()
+            .map(roomCode -> failures.containsKey(roomCode)
+                ? BulkItemResult.failed(roomCode, failures.get(roomCode))
+                : BulkItemResult.ok(roomCode, null))
+            .toList();
+        return BulkResponse.of(results);
+    }
+    
+    private void checkBatchSize(int size, int max) {
+        if (size > max) {
+            throw new RuntimeException("Batch too large: at most " + max + " items per request");
+        }
+    }
+    
+    private static int countFailed(BulkItemResult[] results) {
+        return (int) Arrays.stream(results).filter(result -> !result.isSuccess()).count();
+    }
+}
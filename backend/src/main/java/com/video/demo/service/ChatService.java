@@ -3,20 +3,62 @@ package com.video.demo.service;
 import com.video.demo.model.ChatMessage;
 import com.video.demo.dto.ChatMessageRequest;
 import com.video.demo.dto.ChatMessageResponse;
+import com.video.demo.event.ChatMessageAcceptedEvent;
 import com.video.demo.repository.ChatMessageRepository;
 import com.video.demo.repository.RoomRepository;
 import com.video.demo.model.Room;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChatService {
     
+    private static final int PERSIST_BATCH_SIZE = 100;
+    private static final long PERSIST_RETRY_BASE_MS = 500;
+    private static final long PERSIST_RETRY_MAX_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+    private static final int FANOUT_THREADS = 4;
+    private static final int DEDUP_WINDOW = 256;
+    private static final long ROOM_STATE_IDLE_MS = TimeUnit.MINUTES.toMillis(10);
+    
     private final ChatMessageRepository chatMessageRepository;
     private final RoomRepository roomRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    private final Map<String, RoomChatState> roomStates = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<ChatMessage> pendingWrites = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor persistExecutor = newPersistExecutor();
+    private final ExecutorService fanoutExecutor = Executors.newFixedThreadPool(FANOUT_THREADS, r -> {
+        Thread thread = new Thread(r, "chat-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Only touched on the chat-persist thread
+    private int failedFlushes;
     
     public ChatMessageResponse sendMessage(ChatMessageRequest request) {
         // Verify room exists and user is participant
@@ -27,15 +69,46 @@ public class ChatService {
             throw new RuntimeException("User is not a participant in this room");
         }
         
-        ChatMessage chatMessage = new ChatMessage(
-            request.getRoomCode(),
-            request.getUsername(),
-            request.getMessage()
-        );
+        return accept(request.getRoomCode(), request.getUsername(), request.getMessage(), request.getClientMessageId());
+    }
+    
+    /**
+     * Single entry point for chat from REST and WebSocket alike. Assigns the
+     * room's next sequence number and queues the message for asynchronous
+     * persistence and for fan-out, which publishes each room's messages
+     * once, in seq order, off the caller's thread. A repeated
+     * clientMessageId from the same user returns the original message
+     * without storing or delivering it again.
+     */
+    public ChatMessageResponse accept(String roomCode, String username, String message, String clientMessageId) {
+        RoomChatState state = stateFor(roomCode);
+        String dedupKey = clientMessageId != null ? username + '\n' + clientMessageId : null;
         
-        chatMessage = chatMessageRepository.save(chatMessage);
+        ChatMessageResponse response;
+        // Per-room lock only assigns the seq and enqueues; socket writes happen in scheduleFanout
+        synchronized (state) {
+            state.lastUsedAt = System.currentTimeMillis();
+            if (dedupKey != null && state.recent.containsKey(dedupKey)) {
+                return state.recent.get(dedupKey);
+            }
+            
+            ChatMessage chatMessage = new ChatMessage(roomCode, username, message);
+            chatMessage.setId(new ObjectId().toHexString());
+            chatMessage.setSeq(++state.lastSeq);
+            chatMessage.setClientMessageId(clientMessageId);
+            
+            response = mapToResponse(chatMessage);
+            if (dedupKey != null) {
+                state.recent.put(dedupKey, response);
+            }
+            
+            pendingWrites.add(chatMessage);
+            state.outbox.add(response);
+        }
         
-        return mapToResponse(chatMessage);
+        schedulePersist();
+        scheduleFanout(state);
+        return response;
     }
     
     public List<ChatMessageResponse> getChatHistory(String roomCode) {
@@ -43,7 +116,8 @@ public class ChatService {
         roomRepository.findByRoomCode(roomCode)
             .orElseThrow(() -> new RuntimeException("Room not found"));
         
-        List<ChatMessage> messages = chatMessageRepository.findByRoomCodeOrderByTimestampAsc(roomCode);
+        // Messages still queued for persistence are delivered live but may be missing here for a moment
+        List<ChatMessage> messages = chatMessageRepository.findByRoomCodeOrderBySeqAscTimestampAsc(roomCode);
         
         return messages.stream()
             .map(this::mapToResponse)
@@ -55,16 +129,208 @@ public class ChatService {
         roomRepository.findByRoomCode(roomCode)
             .orElseThrow(() -> new RuntimeException("Room not found"));
         
+        forgetRooms(Set.of(roomCode));
         chatMessageRepository.deleteByRoomCode(roomCode);
     }
     
+    // Removes chat for many rooms in a single deleteMany; callers have already resolved the rooms
+    public long deleteChatHistories(Collection<String> roomCodes) {
+        forgetRooms(roomCodes);
+        return chatMessageRepository.deleteByRoomCodeIn(roomCodes);
+    }
+    
+    /**
+     * Drops sequence and dedup state for rooms without live signaling seats
+     * that haven't seen a message recently. Evicted rooms reload their last
+     * sequence number from Mongo on the next message, so rooms with messages
+     * still waiting to be persisted or fanned out are kept.
+     */
+    public int evictIdleRoomState(Set<String> liveRoomCodes) {
+        long cutoff = System.currentTimeMillis() - ROOM_STATE_IDLE_MS;
+        Set<String> unpersisted = pendingWrites.stream()
+            .map(ChatMessage::getRoomCode)
+            .collect(Collectors.toSet());
+        int before = roomStates.size();
+        roomStates.entrySet().removeIf(entry ->
+            !liveRoomCodes.contains(entry.getKey())
+                && !unpersisted.contains(entry.getKey())
+                && entry.getValue().outbox.isEmpty()
+                && entry.getValue().lastUsedAt < cutoff);
+        return before - roomStates.size();
+    }
+    
+    private RoomChatState stateFor(String roomCode) {
+        RoomChatState state = roomStates.get(roomCode);
+        if (state != null) {
+            return state;
+        }
+        // Resume numbering after whatever is stored or still queued for this room
+        long storedSeq = chatMessageRepository.findTopByRoomCodeOrderBySeqDesc(roomCode)
+            .map(ChatMessage::getSeq)
+            .orElse(0L);
+        long lastSeq = pendingWrites.stream()
+            .filter(chatMessage -> chatMessage.getRoomCode().equals(roomCode))
+            .mapToLong(ChatMessage::getSeq)
+            .reduce(storedSeq, Math::max);
+        return roomStates.computeIfAbsent(roomCode, k -> new RoomChatState(lastSeq));
+    }
+    
+    private void forgetRooms(Collection<String> roomCodes) {
+        roomCodes.forEach(roomStates::remove);
+        pendingWrites.removeIf(chatMessage -> roomCodes.contains(chatMessage.getRoomCode()));
+    }
+    
+    /**
+     * Publishes a room's queued messages on the fan-out pool, off the
+     * caller's thread. At most one drain runs per room, so delivery follows
+     * seq order. The pool stays small because socket writes are bounded in
+     * the send path: a seat hands its frames to a single writer, and a
+     * connection that exceeds the signaling.send.* limits is disconnected,
+     * so a slow client can't pin a fan-out thread.
+     */
+    private void scheduleFanout(RoomChatState state) {
+        if (!fanoutExecutor.isShutdown() && state.dispatching.compareAndSet(false, true)) {
+            fanoutExecutor.execute(() -> drainOutbox(state));
+        }
+    }
+    
+    private void drainOutbox(RoomChatState state) {
+        ChatMessageResponse next;
+        while ((next = state.outbox.poll()) != null) {
+            try {
+                eventPublisher.publishEvent(new ChatMessageAcceptedEvent(next));
+            } catch (Exception e) {
+                log.error("Failed to fan out chat message {} in room {}: {}", next.getSeq(), next.getRoomCode(), e.getMessage());
+            }
+        }
+        state.dispatching.set(false);
+        // A message may have been queued after the last poll but before the flag was cleared
+        if (!state.outbox.isEmpty()) {
+            scheduleFanout(state);
+        }
+    }
+    
+    private void schedulePersist() {
+        // After shutdown starts, shutdown() itself drains whatever is still queued
+        if (!persistExecutor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            persistExecutor.execute(this::flushPendingWrites);
+        }
+    }
+    
+    private void flushPendingWrites() {
+        flushScheduled.set(false);
+        if (drainPendingWrites(failedFlushes > 0)) {
+            if (failedFlushes > 0) {
+                log.info("Chat persistence recovered after {} failed attempts", failedFlushes);
+            }
+            failedFlushes = 0;
+            return;
+        }
+        
+        // Messages were already acknowledged and broadcast, so keep retrying with capped backoff
+        failedFlushes++;
+        long delay = Math.min(PERSIST_RETRY_MAX_MS, PERSIST_RETRY_BASE_MS << Math.min(failedFlushes - 1, 6));
+        log.warn("Retrying chat persistence in {} ms (attempt {}, {} messages pending)",
+            delay, failedFlushes + 1, pendingWrites.size());
+        if (!persistExecutor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            persistExecutor.schedule(this::flushPendingWrites, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Writes the queue in batches. Returns false if a batch failed, in which
+     * case that batch is back at the head of the queue in its original order.
+     */
+    private boolean drainPendingWrites(boolean retrying) {
+        List<ChatMessage> batch = new ArrayList<>(PERSIST_BATCH_SIZE);
+        ChatMessage next;
+        while ((next = pendingWrites.pollFirst()) != null) {
+            batch.add(next);
+            if (batch.size() == PERSIST_BATCH_SIZE || pendingWrites.isEmpty()) {
+                if (!insertBatch(batch, retrying)) {
+                    return false;
+                }
+                batch = new ArrayList<>(PERSIST_BATCH_SIZE);
+            }
+        }
+        return true;
+    }
+    
+    private boolean insertBatch(List<ChatMessage> batch, boolean retrying) {
+        try {
+            if (retrying) {
+                // A failed insertMany may have stored part of the batch; saving by id is idempotent
+                chatMessageRepository.saveAll(batch);
+            } else {
+                chatMessageRepository.insert(batch);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to persist {} chat messages: {}", batch.size(), e.getMessage());
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                pendingWrites.offerFirst(batch.get(i));
+            }
+            return false;
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        fanoutExecutor.shutdown();
+        persistExecutor.shutdown();
+        persistExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        
+        // Anything accepted after the last flush, or still waiting on a backed-off retry
+        for (int attempt = 1; attempt <= SHUTDOWN_FLUSH_ATTEMPTS; attempt++) {
+            if (drainPendingWrites(true)) {
+                return;
+            }
+            Thread.sleep(PERSIST_RETRY_BASE_MS * attempt);
+        }
+        
+        log.error("Shutting down with {} unpersisted chat messages", pendingWrites.size());
+        pendingWrites.forEach(chatMessage -> log.error("Unpersisted chat message {} in room {} (seq {}) from {}: {}",
+            chatMessage.getId(), chatMessage.getRoomCode(), chatMessage.getSeq(),
+            chatMessage.getUsername(), chatMessage.getMessage()));
+    }
+    
+    private static ScheduledThreadPoolExecutor newPersistExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "chat-persist");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Backed-off retries are dropped on shutdown; shutdown() flushes the queue itself
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+    
     private ChatMessageResponse mapToResponse(ChatMessage chatMessage) {
         return new ChatMessageResponse(
             chatMessage.getId(),
             chatMessage.getRoomCode(),
             chatMessage.getUsername(),
             chatMessage.getMessage(),
-            chatMessage.getTimestamp()
+            chatMessage.getTimestamp(),
+            chatMessage.getSeq(),
+            chatMessage.getClientMessageId()
         );
     }
+    
+    private static class RoomChatState {
+        private long lastSeq;
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        private final Queue<ChatMessageResponse> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean dispatching = new AtomicBoolean();
+        private final Map<String, ChatMessageResponse> recent = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatMessageResponse> eldest) {
+                return size() > DEDUP_WINDOW;
+            }
+        };
+        
+        RoomChatState(long lastSeq) {
+            this.lastSeq = lastSeq;
+        }
+    }
 }
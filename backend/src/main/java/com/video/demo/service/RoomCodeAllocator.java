@@ -0,0 +1,60 @@
+package com.video.demo.service;
+
+import com.video.demo.model.Room;
+import com.video.demo.repository.RoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+
+/**
+ * Persists new rooms under a unique room code in a single round trip.
+ * Uniqueness is enforced by the unique index on rooms.roomCode rather than
+ * an exists-then-save check, so concurrent creators can't both claim a code.
+ * Generated codes that collide are simply redrawn and re-inserted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomCodeAllocator {
+    
+    static final int CODE_LENGTH = 8;
+    static final int MAX_ATTEMPTS = 5;
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+    
+    private final RoomRepository roomRepository;
+    private final SecureRandom random = new SecureRandom();
+    
+    /**
+     * Inserts the room. When {@code generateCode} is true a fresh code is
+     * drawn for each attempt; otherwise the room's own code is used and a
+     * conflict is reported to the caller.
+     */
+    public Room insert(Room room, boolean generateCode) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            if (generateCode) {
+                room.setRoomCode(nextCode());
+            }
+            try {
+                return roomRepository.insert(room);
+            } catch (DuplicateKeyException e) {
+                if (!generateCode) {
+                    throw new RuntimeException("Room code already exists");
+                }
+                log.debug("Room code collision on attempt {}: {}", attempt, room.getRoomCode());
+                room.setId(null);
+            }
+        }
+        throw new RuntimeException("Could not allocate a unique room code");
+    }
+    
+    String nextCode() {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(code);
+    }
+}
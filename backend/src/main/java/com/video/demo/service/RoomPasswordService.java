@@ -0,0 +1,170 @@
+package com.video.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashes room passwords with salted PBKDF2 and verifies join attempts.
+ *
+ * Stored hashes have the form {@code pbkdf2$<iterations>$<salt>$<hash>} so the
+ * cost can be raised later without invalidating existing rooms. Successful
+ * verifications are remembered briefly, keyed by room code, username and a
+ * digest of the stored hash and supplied password, so reconnects during a
+ * meeting don't pay the hashing cost again. Failed attempts are never cached.
+ * Concurrent first joins presenting the same password for the same room
+ * share one hash, so a meeting-start storm costs one PBKDF2 derivation
+ * rather than one per participant.
+ */
+@Service
+public class RoomPasswordService {
+    
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 256;
+    
+    private final int iterations;
+    private final long verifyCacheTtlMs;
+    private final int verifyCacheMaxEntries;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Long> verifiedJoins = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    
+    public RoomPasswordService(
+            @Value("${rooms.password.iterations:600000}") int iterations,
+            @Value("${rooms.password.verify-cache-ttl-ms:600000}") long verifyCacheTtlMs,
+            @Value("${rooms.password.verify-cache-max-entries:10000}") int verifyCacheMaxEntries) {
+        this.iterations = iterations;
+        this.verifyCacheTtlMs = verifyCacheTtlMs;
+        this.verifyCacheMaxEntries = verifyCacheMaxEntries;
+    }
+    
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] key = derive(password, salt, iterations, KEY_BITS);
+        return PREFIX + "$" + iterations + "$" + encode(salt) + "$" + encode(key);
+    }
+    
+    /**
+     * Verifies a join attempt, consulting the verified-join cache first.
+     */
+    public boolean verify(String roomCode, String username, String password, String storedPassword) {
+        if (password == null || storedPassword == null) {
+            return false;
+        }
+        
+        String credentialKey = roomCode + '\n' + credentialDigest(storedPassword, password);
+        String cacheKey = credentialKey + '\n' + username;
+        Long expiresAt = verifiedJoins.get(cacheKey);
+        if (expiresAt != null && expiresAt > System.currentTimeMillis()) {
+            return true;
+        }
+        
+        boolean matches = matchesOnce(credentialKey, password, storedPassword);
+        if (matches && verifyCacheTtlMs > 0) {
+            long now = System.currentTimeMillis();
+            remember(cacheKey, now + verifyCacheTtlMs, now);
+        }
+        return matches;
+    }
+    
+    /**
+     * Single-flight {@link #matches}: callers verifying the same credential
+     * while a hash is already running wait for and share its result.
+     */
+    private boolean matchesOnce(String credentialKey, String password, String storedPassword) {
+        CompletableFuture<Boolean> flight = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(credentialKey, flight);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        
+        try {
+            boolean matches = matches(password, storedPassword);
+            flight.complete(matches);
+            return matches;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(credentialKey, flight);
+        }
+    }
+    
+    public boolean matches(String password, String storedPassword) {
+        String[] parts = storedPassword.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            // Rooms created before hashing was introduced store the password as-is
+            return MessageDigest.isEqual(
+                storedPassword.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        byte[] salt = Base64.getDecoder().decode(parts[2]);
+        byte[] expected = Base64.getDecoder().decode(parts[3]);
+        byte[] actual = derive(password, salt, Integer.parseInt(parts[1]), expected.length * 8);
+        return MessageDigest.isEqual(expected, actual);
+    }
+    
+    /**
+     * True for legacy plaintext passwords and hashes made with a different cost.
+     */
+    public boolean needsRehash(String storedPassword) {
+        String[] parts = storedPassword.split("\\$");
+        return parts.length != 4 || !PREFIX.equals(parts[0]) || !String.valueOf(iterations).equals(parts[1]);
+    }
+    
+    private void remember(String cacheKey, long expiresAt, long now) {
+        if (verifiedJoins.size() >= verifyCacheMaxEntries) {
+            verifiedJoins.values().removeIf(expiry -> expiry <= now);
+            if (verifiedJoins.size() >= verifyCacheMaxEntries) {
+                verifiedJoins.clear();
+            }
+        }
+        verifiedJoins.put(cacheKey, expiresAt);
+    }
+    
+    private String credentialDigest(String storedPassword, String password) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(storedPassword.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) 0);
+            sha256.update(password.getBytes(StandardCharsets.UTF_8));
+            return encode(sha256.digest());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static byte[] derive(String password, byte[] salt, int iterations, int keyBits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyBits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    private static String encode(byte[] bytes) {
+        return Base64.getEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,129 @@
+package com.video.demo.service;
+
+import com.video.demo.handler.SignalingHandler;
+import com.video.demo.model.Room;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background sweep that keeps long-running deployments bounded: evicts
+ * signaling sessions whose close was never reported, keeps rooms with live
+ * seats marked as recently active, and deactivates rooms nobody has used
+ * within the idle timeout. Mongo work is done in batched multi-updates.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoomReaperService {
+    
+    private final MongoTemplate mongoTemplate;
+    private final SignalingHandler signalingHandler;
+    private final ChatService chatService;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "room-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Value("${rooms.reaper.interval-ms:60000}")
+    private long intervalMs;
+    
+    // Active rooms with no join or live seat for this long are deactivated
+    @Value("${rooms.reaper.idle-timeout-ms:7200000}")
+    private long idleTimeoutMs;
+    
+    @Value("${rooms.reaper.batch-size:500}")
+    private int batchSize;
+    
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::reap, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+    
+    public void reap() {
+        try {
+            int evicted = signalingHandler.evictClosedSessions();
+            Set<String> liveRoomCodes = signalingHandler.getLiveRoomCodes();
+            LocalDateTime now = LocalDateTime.now();
+            
+            touchLiveRooms(liveRoomCodes, now);
+            chatService.evictIdleRoomState(liveRoomCodes);
+            long deactivated = deactivateIdleRooms(liveRoomCodes, now.minus(Duration.ofMillis(idleTimeoutMs)));
+            
+            if (evicted > 0 || deactivated > 0) {
+                log.info("Reaper evicted {} stale sessions and deactivated {} idle rooms", evicted, deactivated);
+            }
+        } catch (Exception e) {
+            // Never let one failed run cancel the periodic task
+            log.error("Room reaper run failed: {}", e.getMessage());
+        }
+    }
+    
+    private void touchLiveRooms(Set<String> liveRoomCodes, LocalDateTime now) {
+        List<String> codes = new ArrayList<>(liveRoomCodes);
+        for (int from = 0; from < codes.size(); from += batchSize) {
+            List<String> batch = codes.subList(from, Math.min(from + batchSize, codes.size()));
+            mongoTemplate.updateMulti(
+                Query.query(Criteria.where("roomCode").in(batch).and("active").is(true)),
+                Update.update("lastActivityAt", now),
+                Room.class
+            );
+        }
+    }
+    
+    private long deactivateIdleRooms(Set<String> liveRoomCodes, LocalDateTime cutoff) {
+        // Only rooms that were used and then abandoned; never-joined rooms (e.g. pre-created for an
+        // upcoming event) and rooms from before activity tracking have no lastActivityAt and are skipped
+        Criteria idle = new Criteria().andOperator(
+            Criteria.where("active").is(true),
+            Criteria.where("roomCode").nin(liveRoomCodes),
+            Criteria.where("lastActivityAt").lt(cutoff)
+        );
+        
+        long deactivated = 0;
+        while (true) {
+            Query batchQuery = Query.query(idle).limit(batchSize);
+            batchQuery.fields().include("id");
+            List<String> ids = mongoTemplate.find(batchQuery, Room.class).stream()
+                .map(Room::getId)
+                .toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            
+            // Re-apply the idle filter so a room joined since the read is left alone
+            deactivated += mongoTemplate.updateMulti(
+                Query.query(new Criteria().andOperator(Criteria.where("id").in(ids), idle)),
+                Update.update("active", false),
+                Room.class
+            ).getModifiedCount();
+            
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return deactivated;
+    }
+}
@@ -8,29 +8,24 @@ import com.video.demo.repository.RoomRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
+import java.time.LocalDateTime;
 
 @Service
 @RequiredArgsConstructor
 public class RoomService {
     
     private final RoomRepository roomRepository;
+    private final RoomCodeAllocator roomCodeAllocator;
+    private final RoomPasswordService roomPasswordService;
     
     public RoomResponse createRoom(RoomRequest request) {
         // Generate unique room code if not provided
         String roomCode = request.getRoomCode();
-        if (roomCode == null || roomCode.isEmpty()) {
-            roomCode = generateRoomCode();
-        }
-        
-        // Check if room code already exists
-        if (roomRepository.existsByRoomCode(roomCode)) {
-            throw new RuntimeException("Room code already exists");
-        }
+        boolean generateCode = roomCode == null || roomCode.isEmpty();
         
         Room room = new Room(
             roomCode,
-            request.getPassword(),
+            roomPasswordService.hash(request.getPassword()),
             request.getRoomName() != null ? request.getRoomName() : "Meeting Room",
             request.getCreator() // Add creator
         );
@@ -38,8 +33,9 @@ public class RoomService {
         // Add creator as first participant
         room.getParticipants().add(request.getCreator());
         
-        Room savedRoom = roomRepository.save(room);
-        System.out.println("🏠 Room created: " + roomCode + " by " + request.getCreator());
+        // Unique index on roomCode rejects duplicates, so no existence check is needed
+        Room savedRoom = roomCodeAllocator.insert(room, generateCode);
+        System.out.println("🏠 Room created: " + savedRoom.getRoomCode() + " by " + request.getCreator());
         return mapToResponse(savedRoom);
     }
     
@@ -47,7 +43,8 @@ public class RoomService {
         Room room = roomRepository.findByRoomCode(request.getRoomCode())
             .orElseThrow(() -> new RuntimeException("Room not found"));
         
-        if (!room.getPassword().equals(request.getPassword())) {
+        if (!roomPasswordService.verify(room.getRoomCode(), request.getUsername(),
+                request.getPassword(), room.getPassword())) {
             throw new RuntimeException("Invalid password");
         }
         
@@ -58,6 +55,12 @@ public class RoomService {
         
         // Add participant
         room.getParticipants().add(request.getUsername());
+        room.setLastActivityAt(LocalDateTime.now());
+        
+        // Upgrade legacy plaintext passwords and outdated hash costs on a successful join
+        if (roomPasswordService.needsRehash(room.getPassword())) {
+            room.setPassword(roomPasswordService.hash(request.getPassword()));
+        }
         roomRepository.save(room);
         
         return mapToResponse(room);
@@ -79,10 +82,6 @@ public class RoomService {
         roomRepository.save(room);
     }
     
-    private String generateRoomCode() {
-        return UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-    
     public void reactivateRoom(String roomCode, String username) {
         Room room = roomRepository.findByRoomCode(roomCode)
             .orElseThrow(() -> new RuntimeException("Room not found"));
@@ -94,6 +93,8 @@ public class RoomService {
         
         if (!room.isActive()) {
             room.setActive(true);
+            // Restart the idle window so the reaper doesn't deactivate it again on its next run
+            room.setLastActivityAt(LocalDateTime.now());
             roomRepository.save(room);
             System.out.println("🔄 Room reactivated by creator " + username + ": " + roomCode);
         }
@@ -112,7 +113,7 @@ public class RoomService {
         roomRepository.delete(room);
     }
     
-    private RoomResponse mapToResponse(Room room) {
+    RoomResponse mapToResponse(Room room) {
         RoomResponse response = new RoomResponse();
         response.setId(room.getId());
         response.setRoomCode(room.getRoomCode());
@@ -0,0 +1,159 @@
+package com.video.demo.handler;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ParticipantSessionTest {
+
+    private final List<String> firstWritten = new ArrayList<>();
+    private final List<String> secondWritten = new ArrayList<>();
+    private final WebSocketSession first = connection("first", firstWritten);
+    private final WebSocketSession second = connection("second", secondWritten);
+
+    @Test
+    void framesAreNumberedPerSeat() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+
+        assertTrue(seat.send("{\"type\":\"offer\"}"));
+        assertTrue(seat.send("{}"));
+
+        assertEquals(List.of("{\"frameSeq\":1,\"type\":\"offer\"}", "{\"frameSeq\":2}"), firstWritten);
+    }
+
+    @Test
+    void framesSentWhileDetachedAreReplayedInOrder() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        seat.send("{\"n\":1}");
+        assertTrue(seat.detach("first", generation -> mock(ScheduledFuture.class)));
+        seat.send("{\"n\":2}");
+        seat.send("{\"n\":3}");
+
+        assertEquals(2, seat.resume(second, 1L));
+
+        assertEquals(List.of("{\"frameSeq\":2,\"n\":2}", "{\"frameSeq\":3,\"n\":3}"), secondWritten);
+        assertTrue(seat.isAttachedTo("second"));
+    }
+
+    @Test
+    void framesWrittenIntoAHalfOpenSocketAreReplayed() throws IOException {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        seat.send("{\"n\":1}");
+        seat.send("{\"n\":2}");
+
+        // The client saw only the first frame before the connection silently dropped
+        assertEquals(1, seat.resume(second, 1L));
+
+        assertEquals(List.of("{\"frameSeq\":2,\"n\":2}"), secondWritten);
+        verify(first).close(CloseStatus.NORMAL);
+    }
+
+    @Test
+    void failedWriteKeepsFrameForResume() throws IOException {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        doThrow(new IOException("Broken pipe")).when(first).sendMessage(any());
+
+        seat.send("{\"n\":1}");
+        assertTrue(seat.hasClosedConnection());
+        seat.send("{\"n\":2}");
+
+        assertEquals(2, seat.resume(second, 0L));
+        assertEquals(List.of("{\"frameSeq\":1,\"n\":1}", "{\"frameSeq\":2,\"n\":2}"), secondWritten);
+        assertFalse(seat.hasClosedConnection());
+    }
+
+    @Test
+    void overflowWhileDetachedMakesReplayImpossible() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 2);
+        seat.detach("first", generation -> mock(ScheduledFuture.class));
+
+        assertTrue(seat.send("{\"n\":1}"));
+        assertTrue(seat.send("{\"n\":2}"));
+        assertFalse(seat.send("{\"n\":3}"));
+
+        assertEquals(-1, seat.resume(second, 0L));
+        assertTrue(secondWritten.isEmpty());
+    }
+
+    @Test
+    void resumeFromAnUnknownSeqFails() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        seat.send("{\"n\":1}");
+
+        assertEquals(-1, seat.resume(second, 5L));
+    }
+
+    @Test
+    void releasedSeatCannotBeResumed() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+
+        assertTrue(seat.release());
+        assertFalse(seat.release());
+        assertEquals(-1, seat.resume(second, 0L));
+        assertFalse(seat.send("{\"n\":1}"));
+    }
+
+    @Test
+    void expiryFromAnEarlierDetachDoesNotReleaseTheSeat() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        AtomicLong armed = new AtomicLong();
+        seat.detach("first", generation -> {
+            armed.set(generation);
+            return mock(ScheduledFuture.class);
+        });
+        long staleGeneration = armed.get();
+        seat.resume(second, 0L);
+
+        // The expiry task fired after the client had already resumed
+        assertFalse(seat.expire(staleGeneration));
+
+        seat.detach("second", generation -> {
+            armed.set(generation);
+            return mock(ScheduledFuture.class);
+        });
+        assertFalse(seat.expire(staleGeneration));
+        assertTrue(seat.expire(armed.get()));
+        assertEquals(-1, seat.resume(first, 0L));
+    }
+
+    @Test
+    void detachFromAReplacedConnectionIsIgnored() {
+        ParticipantSession seat = new ParticipantSession("ROOM1234", "alice", "token", first, 4);
+        seat.resume(second, 0L);
+
+        assertFalse(seat.detach("first", generation -> mock(ScheduledFuture.class)));
+        assertTrue(seat.isAttachedTo("second"));
+    }
+
+    private static WebSocketSession connection(String id, List<String> written) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        try {
+            doAnswer(invocation -> {
+                written.add(invocation.<TextMessage>getArgument(0).getPayload());
+                return null;
+            }).when(session).sendMessage(any());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return session;
+    }
+}
@@ -0,0 +1,81 @@
+package com.video.demo.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+    private final TimingWheel<String> wheel = new TimingWheel<>(100, 8, expired::add);
+
+    @Test
+    void keyExpiresOnTheTickItsDelayRoundsUpTo() {
+        wheel.schedule("a", 250);
+
+        advance(2);
+        assertTrue(expired.isEmpty());
+        advance(1);
+        assertEquals(List.of("a"), expired);
+
+        advance(8);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void rescheduleMovesTheDeadline() {
+        wheel.schedule("a", 200);
+        advance(1);
+        wheel.schedule("a", 300);
+
+        advance(2);
+        assertTrue(expired.isEmpty());
+        advance(1);
+        assertEquals(List.of("a"), expired);
+    }
+
+    @Test
+    void cancelledKeyNeverExpires() {
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 100);
+        wheel.cancel("a");
+
+        advance(8);
+        assertEquals(List.of("b"), expired);
+    }
+
+    @Test
+    void callbackMayRescheduleItsKey() {
+        AtomicReference<TimingWheel<String>> self = new AtomicReference<>();
+        List<String> fired = new ArrayList<>();
+        self.set(new TimingWheel<>(100, 8, key -> {
+            fired.add(key);
+            if (fired.size() < 3) {
+                self.get().schedule(key, 100);
+            }
+        }));
+        self.get().schedule("a", 100);
+
+        for (int i = 0; i < 5; i++) {
+            self.get().advance();
+        }
+        assertEquals(List.of("a", "a", "a"), fired);
+    }
+
+    @Test
+    void delayBeyondOneTurnIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule("a", 800));
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.advance();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.video.demo.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.video.demo.dto.BulkItemResult;
+import com.video.demo.dto.BulkResponse;
+import com.video.demo.dto.RoomRequest;
+import com.video.demo.model.Room;
+import com.video.demo.repository.RoomRepository;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk inserts go to a simulated unordered bulk write that enforces the
+ * unique index on roomCode and rejects one code with a validation error.
+ */
+class BulkRoomServiceTest {
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int DOCUMENT_VALIDATION_FAILURE = 121;
+
+    private final Set<String> storedCodes = new HashSet<>(Set.of("TAKEN001", "DUPCODE1"));
+    private final List<List<String>> insertedBatches = new ArrayList<>();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final RoomRepository roomRepository = mock(RoomRepository.class);
+    private final RoomCodeAllocator roomCodeAllocator = spy(new RoomCodeAllocator(roomRepository));
+    private final RoomPasswordService roomPasswordService = new RoomPasswordService(1000, 0, 1000);
+    private final BulkRoomService bulkRoomService = new BulkRoomService(mongoTemplate, roomRepository,
+        roomCodeAllocator, roomPasswordService,
+        new RoomService(roomRepository, roomCodeAllocator, roomPasswordService), mock(ChatService.class));
+
+    @BeforeEach
+    void start() {
+        ReflectionTestUtils.setField(bulkRoomService, "maxItems", 1000);
+        ReflectionTestUtils.setField(bulkRoomService, "maxCreateItems", 4);
+        ReflectionTestUtils.setField(bulkRoomService, "hashThreads", 2);
+        bulkRoomService.start();
+        when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Room.class)).thenAnswer(invocation -> simulatedBulkWrite());
+    }
+
+    @AfterEach
+    void stop() {
+        bulkRoomService.stop();
+    }
+
+    @Test
+    void resultsFollowRequestOrderWithDuplicateKeyRetry() {
+        // The first generated code collides with an existing room and is redrawn
+        doReturn("DUPCODE1", "FRESH001").when(roomCodeAllocator).nextCode();
+
+        BulkResponse response = bulkRoomService.createRooms(List.of(
+            request("TEAMSYNC"),
+            request("TAKEN001"),
+            request(null),
+            request("BADROOM1")));
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        List<BulkItemResult> results = response.getResults();
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("TEAMSYNC", results.get(0).getRoomCode());
+        assertNotNull(results.get(0).getRoom().getId());
+
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("TAKEN001", results.get(1).getRoomCode());
+        assertEquals("Room code already exists", results.get(1).getError());
+
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("FRESH001", results.get(2).getRoomCode());
+
+        assertFalse(results.get(3).isSuccess());
+        assertEquals("BADROOM1", results.get(3).getRoomCode());
+        assertEquals("Document failed validation", results.get(3).getError());
+
+        // Only the redrawn code is sent again
+        assertEquals(List.of(List.of("TEAMSYNC", "TAKEN001", "DUPCODE1", "BADROOM1"), List.of("FRESH001")),
+            insertedBatches);
+    }
+
+    @Test
+    void generatedCodeGivesUpAfterMaxAttempts() {
+        doReturn("DUPCODE1").when(roomCodeAllocator).nextCode();
+
+        BulkResponse response = bulkRoomService.createRooms(List.of(request(null)));
+
+        assertEquals(1, response.getFailed());
+        assertEquals("Could not allocate a unique room code", response.getResults().get(0).getError());
+        assertEquals(RoomCodeAllocator.MAX_ATTEMPTS, insertedBatches.size());
+    }
+
+    @Test
+    void oversizedCreateBatchIsRejectedBeforeHashing() {
+        List<RoomRequest> requests = List.of(request(null), request(null), request(null), request(null), request(null));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> bulkRoomService.createRooms(requests));
+
+        assertEquals("Batch too large: at most 4 items per request", e.getMessage());
+        verify(mongoTemplate, never()).bulkOps(BulkMode.UNORDERED, Room.class);
+    }
+
+    private BulkOperations simulatedBulkWrite() {
+        BulkOperations bulkOperations = mock(BulkOperations.class);
+        List<Room> batch = new ArrayList<>();
+        when(bulkOperations.insert(anyList())).thenAnswer(invocation -> {
+            batch.addAll(invocation.getArgument(0));
+            return bulkOperations;
+        });
+        when(bulkOperations.execute()).thenAnswer(invocation -> {
+            insertedBatches.add(batch.stream().map(Room::getRoomCode).toList());
+            List<BulkWriteError> errors = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                String roomCode = batch.get(i).getRoomCode();
+                if (roomCode.equals("BADROOM1")) {
+                    errors.add(new BulkWriteError(DOCUMENT_VALIDATION_FAILURE, "Document failed validation",
+                        new BsonDocument(), i));
+                } else if (!storedCodes.add(roomCode)) {
+                    errors.add(new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key: " + roomCode, new BsonDocument(), i));
+                }
+            }
+            if (!errors.isEmpty()) {
+                throw new BulkOperationException("Bulk write operation error",
+                    new MongoBulkWriteException(BulkWriteResult.unacknowledged(), errors, null,
+                        new ServerAddress(), Set.of()));
+            }
+            return BulkWriteResult.unacknowledged();
+        });
+        return bulkOperations;
+    }
+
+    private static RoomRequest request(String roomCode) {
+        return new RoomRequest(roomCode, "secret", null, "alice");
+    }
+}
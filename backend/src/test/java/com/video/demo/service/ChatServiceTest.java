@@ -0,0 +1,144 @@
+package com.video.demo.service;
+
+import com.video.demo.dto.ChatMessageResponse;
+import com.video.demo.event.ChatMessageAcceptedEvent;
+import com.video.demo.model.ChatMessage;
+import com.video.demo.repository.ChatMessageRepository;
+import com.video.demo.repository.RoomRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private final List<ChatMessageResponse> published = new CopyOnWriteArrayList<>();
+    private final ApplicationEventPublisher eventPublisher =
+        event -> published.add(((ChatMessageAcceptedEvent) event).getMessage());
+    private final ChatService chatService =
+        new ChatService(chatMessageRepository, mock(RoomRepository.class), eventPublisher);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        chatService.shutdown();
+    }
+
+    @Test
+    void seqContinuesAfterStoredMessages() {
+        ChatMessage stored = new ChatMessage("ROOM1234", "alice", "earlier");
+        stored.setSeq(41);
+        when(chatMessageRepository.findTopByRoomCodeOrderBySeqDesc("ROOM1234")).thenReturn(Optional.of(stored));
+
+        assertEquals(42, chatService.accept("ROOM1234", "alice", "hi", null).getSeq());
+        assertEquals(43, chatService.accept("ROOM1234", "bob", "hello", null).getSeq());
+        assertEquals(1, chatService.accept("ROOM5678", "carol", "hey", null).getSeq());
+    }
+
+    @Test
+    void retransmitIsAcceptedOnce() throws InterruptedException {
+        ChatMessageResponse original = chatService.accept("ROOM1234", "alice", "hi", "c1");
+        ChatMessageResponse retransmit = chatService.accept("ROOM1234", "alice", "hi", "c1");
+        ChatMessageResponse otherSender = chatService.accept("ROOM1234", "bob", "hi", "c1");
+
+        assertSame(original, retransmit);
+        assertEquals(2, otherSender.getSeq());
+        awaitPublished(2);
+        assertEquals(List.of(1L, 2L), published.stream().map(ChatMessageResponse::getSeq).toList());
+    }
+
+    @Test
+    void messagesAreFannedOutInSeqOrder() throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            chatService.accept("ROOM1234", "alice", "message " + i, null);
+        }
+
+        awaitPublished(50);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i + 1, published.get(i).getSeq());
+        }
+    }
+
+    @Test
+    void failedBatchIsRetriedAheadOfLaterMessages() throws Exception {
+        CountDownLatch insertStarted = new CountDownLatch(1);
+        CountDownLatch releaseInsert = new CountDownLatch(1);
+        when(chatMessageRepository.insert(anyIterable())).thenAnswer(invocation -> {
+            insertStarted.countDown();
+            releaseInsert.await();
+            throw new DataAccessResourceFailureException("Mongo unreachable");
+        });
+        List<List<Long>> saved = new CopyOnWriteArrayList<>();
+        when(chatMessageRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            Iterable<ChatMessage> batch = invocation.getArgument(0);
+            saved.add(seqs(batch));
+            return batch;
+        });
+
+        chatService.accept("ROOM1234", "alice", "first", null);
+        assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        // Accepted while the first insert is still in flight
+        chatService.accept("ROOM1234", "alice", "second", null);
+        chatService.accept("ROOM1234", "alice", "third", null);
+        releaseInsert.countDown();
+
+        verify(chatMessageRepository, timeout(5000)).saveAll(anyIterable());
+        assertEquals(List.of(List.of(1L, 2L, 3L)), saved);
+    }
+
+    @Test
+    void deletedRoomIsNotPersisted() throws Exception {
+        CountDownLatch insertStarted = new CountDownLatch(1);
+        CountDownLatch releaseInsert = new CountDownLatch(1);
+        List<String> persistedRooms = new CopyOnWriteArrayList<>();
+        when(chatMessageRepository.insert(anyIterable())).thenAnswer(invocation -> {
+            Iterable<ChatMessage> batch = invocation.getArgument(0);
+            batch.forEach(chatMessage -> persistedRooms.add(chatMessage.getRoomCode()));
+            insertStarted.countDown();
+            releaseInsert.await();
+            return batch;
+        });
+
+        chatService.accept("ROOM5678", "carol", "keep", null);
+        assertTrue(insertStarted.await(5, TimeUnit.SECONDS));
+        // Queued behind the in-flight insert, then the room is deleted
+        chatService.accept("ROOM1234", "alice", "drop", null);
+        chatService.deleteChatHistories(List.of("ROOM1234"));
+        releaseInsert.countDown();
+        chatService.shutdown();
+
+        assertEquals(List.of("ROOM5678"), persistedRooms);
+        verify(chatMessageRepository, never()).saveAll(anyIterable());
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (published.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, published.size());
+    }
+
+    private static List<Long> seqs(Iterable<ChatMessage> batch) {
+        List<Long> seqs = new ArrayList<>();
+        batch.forEach(chatMessage -> seqs.add(chatMessage.getSeq()));
+        return seqs;
+    }
+}
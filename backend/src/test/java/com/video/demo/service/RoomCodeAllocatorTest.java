@@ -0,0 +1,129 @@
+package com.video.demo.service;
+
+import com.video.demo.model.Room;
+import com.video.demo.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The repository is backed by a map with a unique constraint on roomCode,
+ * standing in for the unique index on rooms.roomCode.
+ */
+class RoomCodeAllocatorTest {
+
+    private final Map<String, Room> roomsByCode = new ConcurrentHashMap<>();
+    private final RoomRepository roomRepository = uniqueCodeRepository();
+
+    @Test
+    void generatedCodeIsInsertedInOneRoundTrip() {
+        Room room = new RoomCodeAllocator(roomRepository).insert(new Room(null, "secret", "Meeting Room", "alice"), true);
+
+        assertEquals(RoomCodeAllocator.CODE_LENGTH, room.getRoomCode().length());
+        verify(roomRepository, times(1)).insert(any(Room.class));
+        verify(roomRepository, never()).existsByRoomCode(any());
+        verify(roomRepository, never()).save(any(Room.class));
+    }
+
+    @Test
+    void explicitCodeConflictIsReported() {
+        RoomCodeAllocator allocator = new RoomCodeAllocator(roomRepository);
+        allocator.insert(new Room("TEAMSYNC", "secret", "Meeting Room", "alice"), false);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+            allocator.insert(new Room("TEAMSYNC", "secret", "Meeting Room", "bob"), false));
+        assertEquals("Room code already exists", e.getMessage());
+    }
+
+    @Test
+    void concurrentCreatorsCannotBothClaimACode() throws Exception {
+        RoomCodeAllocator allocator = new RoomCodeAllocator(roomRepository);
+        int creators = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(creators);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < creators; i++) {
+                String creator = "user" + i;
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        allocator.insert(new Room("TEAMSYNC", "secret", "Meeting Room", creator), false);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            for (Future<Boolean> attempt : attempts) {
+                created += attempt.get() ? 1 : 0;
+            }
+            assertEquals(1, created);
+            assertEquals(1, roomsByCode.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void generatedCodeCollisionIsRetried() {
+        AtomicInteger inserts = new AtomicInteger();
+        RoomRepository collidingOnce = mock(RoomRepository.class);
+        when(collidingOnce.insert(any(Room.class))).thenAnswer(invocation -> {
+            if (inserts.incrementAndGet() == 1) {
+                throw new DuplicateKeyException("E11000 duplicate key");
+            }
+            return invocation.getArgument(0);
+        });
+
+        Room room = new RoomCodeAllocator(collidingOnce).insert(new Room(null, "secret", "Meeting Room", "alice"), true);
+
+        assertEquals(2, inserts.get());
+        assertEquals(RoomCodeAllocator.CODE_LENGTH, room.getRoomCode().length());
+    }
+
+    @Test
+    void generatedCodeGivesUpAfterMaxAttempts() {
+        RoomRepository alwaysColliding = mock(RoomRepository.class);
+        when(alwaysColliding.insert(any(Room.class))).thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+            new RoomCodeAllocator(alwaysColliding).insert(new Room(null, "secret", "Meeting Room", "alice"), true));
+
+        assertEquals("Could not allocate a unique room code", e.getMessage());
+        verify(alwaysColliding, times(RoomCodeAllocator.MAX_ATTEMPTS)).insert(any(Room.class));
+    }
+
+    private RoomRepository uniqueCodeRepository() {
+        RoomRepository repository = mock(RoomRepository.class);
+        when(repository.insert(any(Room.class))).thenAnswer(invocation -> {
+            Room room = invocation.getArgument(0);
+            if (roomsByCode.putIfAbsent(room.getRoomCode(), room) != null) {
+                throw new DuplicateKeyException("E11000 duplicate key: " + room.getRoomCode());
+            }
+            return room;
+        });
+        return repository;
+    }
+}
@@ -0,0 +1,108 @@
+package com.video.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestReporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures join verification latency at the configured PBKDF2 cost for a
+ * meeting-start storm, where many distinct users verify the same room
+ * password for the first time at once, and for the reconnects that follow.
+ * The uncoalesced baseline calls {@code matches} directly, as every join
+ * did before verifications were shared.
+ */
+class RoomPasswordServiceBenchmarkTest {
+
+    private static final int ITERATIONS = configuredIterations();
+    private static final int STORM_USERS = 50;
+    // One request thread per user, as Tomcat's default pool of 200 would give a storm this size
+    private static final int REQUEST_THREADS = STORM_USERS;
+
+    @Test
+    void joinStormAtConfiguredCost(TestReporter reporter) throws Exception {
+        RoomPasswordService service = new RoomPasswordService(ITERATIONS, 600_000, 1000);
+        String stored = service.hash("secret");
+
+        // Warm up the JIT and the PBKDF2 provider
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.matches("secret", stored));
+        }
+
+        long start = System.nanoTime();
+        assertTrue(service.matches("secret", stored));
+        double singleJoinMs = (System.nanoTime() - start) / 1_000_000.0;
+
+        double[] uncoalesced = storm(user -> service.matches("secret", stored));
+        double[] firstJoins = storm(user -> service.verify("ROOM1234", user, "secret", stored));
+        double[] cachedReconnects = storm(user -> service.verify("ROOM1234", user, "secret", stored));
+
+        reporter.publishEntry("Single first join", String.format("%.1f ms (%d iterations, %d CPUs)",
+            singleJoinMs, ITERATIONS, Runtime.getRuntime().availableProcessors()));
+        reporter.publishEntry("First-join storm, one hash per user", summary(uncoalesced));
+        reporter.publishEntry("First-join storm, shared verification", summary(firstJoins));
+        reporter.publishEntry("Reconnect storm, cached", summary(cachedReconnects));
+
+        assertTrue(percentile(firstJoins, 0.95) < percentile(uncoalesced, 0.95));
+        assertTrue(percentile(cachedReconnects, 0.95) < percentile(firstJoins, 0.95));
+    }
+
+    /**
+     * Runs one join per distinct user, all submitted at once to a pool of
+     * request threads. Returns each user's latency from the start of the
+     * storm, sorted ascending.
+     */
+    private double[] storm(Predicate<String> join) throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<Double>> joins = new ArrayList<>();
+            for (int i = 0; i < STORM_USERS; i++) {
+                String username = "user" + i;
+                joins.add(requestThreads.submit(() -> {
+                    assertTrue(join.test(username));
+                    return (System.nanoTime() - start) / 1_000_000.0;
+                }));
+            }
+            double[] latencies = new double[STORM_USERS];
+            for (int i = 0; i < STORM_USERS; i++) {
+                latencies[i] = joins.get(i).get();
+            }
+            Arrays.sort(latencies);
+            return latencies;
+        } finally {
+            requestThreads.shutdown();
+        }
+    }
+
+    private static String summary(double[] latencies) {
+        return String.format("%d users, %d threads: p50 %.1f ms, p95 %.1f ms, max %.1f ms",
+            STORM_USERS, REQUEST_THREADS,
+            percentile(latencies, 0.5), percentile(latencies, 0.95), latencies[latencies.length - 1]);
+    }
+
+    private static double percentile(double[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+    private static int configuredIterations() {
+        try (InputStream in = RoomPasswordServiceBenchmarkTest.class.getResourceAsStream("/application.properties")) {
+            Properties properties = new Properties();
+            properties.load(in);
+            return Integer.parseInt(properties.getProperty("rooms.password.iterations"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read application.properties", e);
+        }
+    }
+}
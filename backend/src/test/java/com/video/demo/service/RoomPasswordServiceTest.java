@@ -0,0 +1,51 @@
+package com.video.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomPasswordServiceTest {
+
+    // Verification logic doesn't depend on the cost, so keep hashing cheap here
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    void wrongPasswordIsRejectedEvenAfterCachedSuccess() {
+        RoomPasswordService service = new RoomPasswordService(ITERATIONS, 600_000, 1000);
+        String stored = service.hash("secret");
+
+        assertTrue(service.verify("ROOM1234", "alice", "secret", stored));
+        assertFalse(service.verify("ROOM1234", "alice", "guess", stored));
+        assertFalse(service.verify("ROOM1234", "bob", "guess", stored));
+    }
+
+    @Test
+    void legacyPlaintextPasswordsStillVerifyAndNeedRehash() {
+        RoomPasswordService service = new RoomPasswordService(ITERATIONS, 600_000, 1000);
+
+        assertTrue(service.verify("ROOM1234", "alice", "secret", "secret"));
+        assertTrue(service.needsRehash("secret"));
+        assertFalse(service.needsRehash(service.hash("secret")));
+    }
+
+    @Test
+    void hashesWithAnotherCostAreRehashed() {
+        RoomPasswordService previous = new RoomPasswordService(ITERATIONS * 2, 0, 1000);
+        RoomPasswordService current = new RoomPasswordService(ITERATIONS, 0, 1000);
+        String stored = previous.hash("secret");
+
+        assertTrue(current.matches("secret", stored));
+        assertTrue(current.needsRehash(stored));
+    }
+
+    @Test
+    void changedRoomPasswordIsVerifiedAgain() {
+        RoomPasswordService service = new RoomPasswordService(ITERATIONS, 600_000, 1000);
+        String original = service.hash("secret");
+        String changed = service.hash("another");
+
+        assertTrue(service.verify("ROOM1234", "alice", "secret", original));
+        assertFalse(service.verify("ROOM1234", "alice", "secret", changed));
+    }
+}
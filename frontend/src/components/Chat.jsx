@@ -29,7 +29,8 @@ const Chat = ({ roomCode, username, messages = [], newMessage = '', setNewMessag
       type: 'chat',
       roomCode: roomCode,
       username: username,
-      message: newMessage.trim()
+      message: newMessage.trim(),
+      clientMessageId: crypto.randomUUID() // Lets the server drop retransmits
     };
 
     ws.send(JSON.stringify(chatMessage));
@@ -77,6 +77,8 @@ function VideoCall() {
   
   const localVideoRef = useRef(null);
   const wsRef = useRef(null);
+  const resumeTokenRef = useRef(null); // Token for resuming the signaling seat after a dropped connection
+  const lastFrameSeqRef = useRef(0); // Highest frameSeq received on our seat, sent with resume
   const peerConnectionsRef = useRef(new Map());
   const streamRef = useRef(null); // Add stream ref for immediate access
   const username = sessionStorage.getItem('username');
@@ -174,13 +176,13 @@ function VideoCall() {
     }
   };
 
-  const connectWebSocket = () => {
+  const connectWebSocket = (resume = false) => {
     const ws = new WebSocket(WS_URL);
     wsRef.current = ws;
 
-    ws.onopen = () => {
-      console.log('WebSocket connected');
-      // Join room
+    const sendJoin = () => {
+      // A join creates a fresh seat whose frames are numbered from 1
+      lastFrameSeqRef.current = 0;
       ws.send(JSON.stringify({
         type: 'join',
         roomCode: roomCode,
@@ -188,10 +190,35 @@ function VideoCall() {
       }));
     };
 
+    ws.onopen = () => {
+      console.log('WebSocket connected');
+      if (resume && resumeTokenRef.current) {
+        // Reclaim our seat; the server replays anything we missed
+        ws.send(JSON.stringify({
+          type: 'resume',
+          roomCode: roomCode,
+          username: username,
+          resumeToken: resumeTokenRef.current,
+          lastFrameSeq: lastFrameSeqRef.current
+        }));
+      } else {
+        // Join room
+        sendJoin();
+      }
+    };
+
     ws.onmessage = async (event) => {
       const message = JSON.parse(event.data);
       console.log('Received message:', message);
 
+      if (typeof message.frameSeq === 'number') {
+        // Skip frames replayed after a resume that we already handled
+        if (message.frameSeq <= lastFrameSeqRef.current) {
+          return;
+        }
+        lastFrameSeqRef.current = message.frameSeq;
+      }
+
       // Handle error messages from server
       if (message.type === 'error') {
         if (message.message.includes('Room is not active')) {
@@ -205,6 +232,17 @@ function VideoCall() {
 
       // Handle regular messages
       switch (message.type) {
+        case 'session':
+          resumeTokenRef.current = message.resumeToken;
+          break;
+        case 'resumed':
+          setError('');
+          break;
+        case 'resume-failed':
+          // Seat expired while we were away - fall back to a full join
+          resumeTokenRef.current = null;
+          sendJoin();
+          break;
         case 'participants':
           handleParticipants(message.users);
           break;
@@ -223,12 +261,22 @@ function VideoCall() {
         case 'user-left':
           handleUserLeft(message.username);
           break;
-        case 'chat':
-          setMessages(prev => [...prev, {
-            ...message,
-            timestamp: new Date(message.timestamp)
-          }]);
+        case 'chat': {
+          const received = { ...message, timestamp: new Date(message.timestamp) };
+          setMessages(prev => {
+            // Replace our optimistic copy, and ignore frames replayed after a resume
+            const existing = prev.findIndex(m =>
+              (received.id && m.id === received.id) ||
+              (received.clientMessageId && m.clientMessageId === received.clientMessageId));
+            if (existing === -1) {
+              return [...prev, received];
+            }
+            const next = [...prev];
+            next[existing] = received;
+            return next;
+          });
           break;
+        }
         case 'meeting-ended':
           alert('The meeting has been ended by the host. You will be redirected to the home page.');
           // Clean up local resources
@@ -259,6 +307,13 @@ function VideoCall() {
       if (event.code === 1008) { // Policy violation - room might be inactive
         setIsRoomInactive(true);
         setError('Room is inactive. Only the creator can reactivate it.');
+      } else if (event.code !== 1000 && wsRef.current === ws && resumeTokenRef.current) {
+        // Unexpected drop - try to resume before the server releases our seat
+        setTimeout(() => {
+          if (wsRef.current === ws) {
+            connectWebSocket(true);
+          }
+        }, 1000);
       }
     };
   };
@@ -757,6 +812,7 @@ function VideoCall() {
       roomCode: roomCode,
       username: username,
       message: newMessage.trim(),
+      clientMessageId: crypto.randomUUID(),
       timestamp: new Date().toISOString()
     };
 